@@ -9,6 +9,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.io.*;
 import java.net.Socket;
 
@@ -22,6 +24,8 @@ public class ClientV1 extends JFrame {
     private boolean sortSizeAsc = false;
     private boolean sortDateAsc = false;
     private boolean sortBotAsc = false;
+    private final ShardMap shardMap;
+    private final List<String> tickers;
 
     // Custom Stock price over time graph
     public class StockGraphPanel extends JPanel {
@@ -136,7 +140,10 @@ public class ClientV1 extends JFrame {
         }
     }
 
-    public ClientV1() {
+    public ClientV1(ShardMap shardMap, List<String> tickers) {
+        this.shardMap = shardMap;
+        this.tickers = tickers;
+
         // Initialize main frame
         setTitle("Stock Market Analysis");
         setSize(900, 600);
@@ -225,30 +232,74 @@ public class ClientV1 extends JFrame {
         fetchTransactionsFromServer();
     }
     
-    // Function to fetch transactions from the server and populate the list
+    // Function to fetch transactions from the owning server nodes and populate the list
     private void fetchTransactionsFromServer() {
-        String serverAddress = "localhost"; // Update with actual server address if necessary
-        int serverPort = 12345; // Ensure the server port matches your server configuration
+        Map<String, List<Transaction>> byTicker = new HashMap<>();
+
+        // Send each node only the tickers it owns
+        for (Map.Entry<String, List<String>> entry : shardMap.groupByOwner(tickers).entrySet()) {
+            String node = entry.getKey();
+            try {
+                byTicker.putAll(fetchTransactionsFromNode(node, entry.getValue()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Unable to fetch transactions from server " + node + ".", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
 
-        try (Socket socket = new Socket(serverAddress, serverPort);
-             ObjectInputStream in = new ObjectInputStream(socket.getInputStream())) {
+        // Merge in the requested ticker order so the result does not depend on which node owns what
+        List<Transaction> transactions = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String ticker : tickers) {
+            if (byTicker.containsKey(ticker)) {
+                transactions.addAll(byTicker.get(ticker));
+            } else {
+                missing.add(ticker);
+            }
+        }
+        if (!missing.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No data received for: " + String.join(", ", missing), "Error", JOptionPane.ERROR_MESSAGE);
+        }
 
-            // Read the list of transactions from the server
-            List<Transaction> transactions = (List<Transaction>) in.readObject();
+        // Update the UI list model with the transactions received
+        SwingUtilities.invokeLater(() -> {
+            listModel.clear();
+            for (Transaction transaction : transactions) {
+                listModel.addElement(transaction);
+            }
+            graphPanel.setTransactions(transactions);
+        });
+    }
 
-            // Update the UI list model with the transactions received
-            SwingUtilities.invokeLater(() -> {
-                listModel.clear();
-                for (Transaction transaction : transactions) {
-                    listModel.addElement(transaction);
-                }
-                graphPanel.setTransactions(transactions);
-            });
+    // Requests the given tickers from one node; each comes back as a length-prefixed serialized list,
+    // or a negative ServerProtocol code when the node can't serve that ticker
+    private Map<String, List<Transaction>> fetchTransactionsFromNode(String node, List<String> nodeTickers) throws IOException, ClassNotFoundException {
+        Map<String, List<Transaction>> byTicker = new HashMap<>();
+
+        try (Socket socket = new Socket(ShardMap.hostOf(node), ShardMap.portOf(node));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+
+            out.writeInt(nodeTickers.size());
+            for (String ticker : nodeTickers) {
+                out.writeUTF(ticker);
+            }
+            out.flush();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Unable to fetch transactions from server.", "Error", JOptionPane.ERROR_MESSAGE);
+            for (String ticker : nodeTickers) {
+                int length = in.readInt();
+                if (length < 0) {
+                    System.err.println("Server " + node + " could not serve " + ticker + " (code " + length + ")");
+                    continue;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                    byTicker.put(ticker, (List<Transaction>) objectIn.readObject());
+                }
+            }
         }
+        return byTicker;
     }
 
     // Updates the details panel with data from the selected transaction
@@ -352,9 +403,17 @@ public class ClientV1 extends JFrame {
         }
     }
 
+    // Usage: ClientV1 [clusterNodes] [tickers...]
+    // e.g.   ClientV1 localhost:12345,localhost:12346 AAPL MSFT IBM
     public static void main(String[] args) {
+        ShardMap shardMap = ShardMap.parse(args.length > 0 ? args[0] : "localhost:12345");
+        List<String> tickers = ServerProtocol.parseTickers(args, 1);
+        if (tickers.isEmpty()) {
+            tickers.add("AAPL");
+        }
+
         SwingUtilities.invokeLater(() -> {
-            ClientV1 app = new ClientV1();
+            ClientV1 app = new ClientV1(shardMap, tickers);
             app.setVisible(true);
         });
     }
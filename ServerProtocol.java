@@ -0,0 +1,37 @@
+package com.mycompany.stockv1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Wire protocol between ClientV1 and the StockV1 nodes.
+// Request: ticker count followed by the tickers. Response: one int length plus serialized
+// List<Transaction> per ticker, or one of the negative codes below in place of the length.
+public class ServerProtocol {
+    // The node asked is not the ticker's owner in the shard map
+    public static final int NOT_OWNER = -1;
+    // The ticker does not match TICKER_PATTERN
+    public static final int INVALID_TICKER = -2;
+    // The node's snapshot for the ticker is missing and could not be built
+    public static final int UNAVAILABLE = -3;
+
+    // Matches the tick_data.ticker VARCHAR(10) column
+    private static final Pattern TICKER_PATTERN = Pattern.compile("[A-Z0-9.\\-]{1,10}");
+
+    // Upper-cases and validates command line tickers, failing on the first bad one
+    public static List<String> parseTickers(String[] args, int from) {
+        List<String> tickers = new ArrayList<>();
+        for (int i = from; i < args.length; i++) {
+            String ticker = args[i].toUpperCase();
+            if (!isValidTicker(ticker)) {
+                throw new IllegalArgumentException("Invalid ticker: " + args[i]);
+            }
+            tickers.add(ticker);
+        }
+        return tickers;
+    }
+
+    public static boolean isValidTicker(String ticker) {
+        return TICKER_PATTERN.matcher(ticker).matches();
+    }
+}
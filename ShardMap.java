@@ -0,0 +1,102 @@
+package com.mycompany.stockv1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Consistent hash ring that assigns each ticker to the server node that owns it.
+// Shared by StockV1 (which ingests only its own tickers) and ClientV1 (which routes queries).
+public class ShardMap {
+    // Virtual points per node so tickers spread evenly across a small cluster
+    private static final int VIRTUAL_NODES = 100;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes = new ArrayList<>();
+
+    public ShardMap(List<String> nodes) {
+        for (String node : nodes) {
+            addNode(node);
+        }
+    }
+
+    // Parses a comma separated node list such as "localhost:12345,localhost:12346"
+    public static ShardMap parse(String nodeList) {
+        List<String> nodes = new ArrayList<>();
+        for (String node : nodeList.split(",")) {
+            if (!node.trim().isEmpty()) {
+                nodes.add(node.trim());
+            }
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Node list is empty: " + nodeList);
+        }
+        return new ShardMap(nodes);
+    }
+
+    // Adding a node only takes over the ring segments in front of its virtual points,
+    // so roughly 1/N of the tickers move and the rest keep their owner.
+    public void addNode(String node) {
+        if (nodes.contains(node)) return;
+        nodes.add(node);
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+    }
+
+    public void removeNode(String node) {
+        if (!nodes.remove(node)) return;
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            ring.remove(hash(node + "#" + i));
+        }
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    // Returns the node ("host:port") owning the given ticker
+    public String ownerOf(String ticker) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("Shard map has no nodes.");
+        }
+        SortedMap<Long, String> tail = ring.tailMap(hash(ticker));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    // Groups tickers by owning node, keeping the order they were given in
+    public Map<String, List<String>> groupByOwner(List<String> tickers) {
+        Map<String, List<String>> byOwner = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            byOwner.computeIfAbsent(ownerOf(ticker), k -> new ArrayList<>()).add(ticker);
+        }
+        return byOwner;
+    }
+
+    public static String hostOf(String node) {
+        return node.substring(0, node.lastIndexOf(':'));
+    }
+
+    public static int portOf(String node) {
+        return Integer.parseInt(node.substring(node.lastIndexOf(':') + 1));
+    }
+
+    // First 8 bytes of MD5, which spreads short ticker strings far better than String.hashCode
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
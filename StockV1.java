@@ -10,9 +10,20 @@ import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 class BloombergDataFetcher {
     private static final String BLOOMBERG_SERVER = "127.0.0.1";
@@ -208,32 +219,64 @@ public class StockV1 {
     // Networking Port
     private static final int PORT = 12345;
     
+    // Encoded per-ticker responses, kept across restarts so a node can serve before ingest finishes.
+    // Each node gets its own subdirectory by port, so local nodes started from one directory don't collide.
+    private static final Path SNAPSHOT_ROOT = Paths.get("snapshots");
+    
+    // Clients are served on a small pool so one slow connection can't stall the others,
+    // and a client that never sends its request is dropped after the timeout
+    private static final int CLIENT_THREADS = 8;
+    private static final int REQUEST_TIMEOUT_MS = 5000;
+    
+    // Usage: StockV1 [selfNode] [clusterNodes] [tickers...]
+    // e.g.   StockV1 localhost:12346 localhost:12345,localhost:12346 AAPL MSFT IBM
+    // With no arguments a single node on port 12345 serves AAPL, as before.
     public static void main(String[] args) {
-        // Create sector and stock
-        Sector sector = new Sector("S&P 500");
-        Stock stock = new Stock("AAPL");
-
-        // Fetch data from Bloomberg API
-        try {
-            System.out.println("Fetching data from Bloomberg API...");
-            List<TickData> tickDataList = BloombergDataFetcher.fetchTickData("AAPL US Equity");
-            if (tickDataList.isEmpty()) {
-                System.out.println("No data received from Bloomberg API.");
-            } else {
-                System.out.println("Data received: " + tickDataList.size() + " ticks");
-            }
-            stock.setTickData(tickDataList);
-        } catch (Exception e) {
-            System.err.println("Error fetching Bloomberg data: " + e.getMessage());
+        String selfNode = args.length > 0 ? args[0] : "localhost:" + PORT;
+        ShardMap shardMap = ShardMap.parse(args.length > 1 ? args[1] : selfNode);
+        if (!shardMap.getNodes().contains(selfNode)) {
+            System.err.println("Node " + selfNode + " is not in the cluster list " + shardMap.getNodes());
             return;
         }
+        List<String> tickers = ServerProtocol.parseTickers(args, 2);
+        if (tickers.isEmpty()) {
+            tickers.add("AAPL");
+        }
 
-        // Classify tick data
-        System.out.println("Classifying tick data...");
-        stock.classifyTickData();
+        // Create sector and the stocks this node owns
+        Sector sector = new Sector("S&P 500");
+        for (String ticker : tickers) {
+            if (shardMap.ownerOf(ticker).equals(selfNode)) {
+                sector.addStock(new Stock(ticker));
+            }
+        }
+        System.out.println("Node " + selfNode + " owns " + sector.getStocks().size() + " of " + tickers.size() + " tickers.");
+
+        // Start serving right away; snapshots left by the previous run are sent until ingest replaces them
+        int port = ShardMap.portOf(selfNode);
+        Path snapshotDir = SNAPSHOT_ROOT.resolve(String.valueOf(port));
+        new Thread(() -> serveClients(port, shardMap, selfNode, snapshotDir), "StockV1-server").start();
+
+        for (Stock stock : sector.getStocks()) {
+            // Fetch data from Bloomberg API
+            try {
+                System.out.println("Fetching " + stock.getTickerSymbol() + " data from Bloomberg API...");
+                List<TickData> tickDataList = BloombergDataFetcher.fetchTickData(stock.getTickerSymbol() + " US Equity");
+                if (tickDataList.isEmpty()) {
+                    System.out.println("No data received from Bloomberg API.");
+                } else {
+                    System.out.println("Data received: " + tickDataList.size() + " ticks");
+                }
+                stock.setTickData(tickDataList);
+            } catch (Exception e) {
+                System.err.println("Error fetching Bloomberg data for " + stock.getTickerSymbol() + ": " + e.getMessage());
+                continue;
+            }
 
-        // Add stock to sector
-        sector.addStock(stock);
+            // Classify tick data
+            System.out.println("Classifying tick data...");
+            stock.classifyTickData();
+        }
 
         // Insert classified tick data into MariaDB
         try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
@@ -247,23 +290,35 @@ public class StockV1 {
         
         // Print transactions
         System.out.println("Printing transactions...");
-        printTransactions(stock);
+        for (Stock stock : sector.getStocks()) {
+            printTransactions(stock);
+        }
         
-        // Send data to client
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Server listening on port " + PORT);
-
-            while (true) {
-                try (Socket clientSocket = serverSocket.accept();
-                     ObjectOutputStream out = new ObjectOutputStream(clientSocket.getOutputStream())) {
+        // Rebuild the snapshot of every owned ticker from the freshly inserted data
+        int written = 0;
+        for (Stock stock : sector.getStocks()) {
+            try {
+                writeSnapshot(snapshotDir, stock.getTickerSymbol());
+                written++;
+            } catch (IOException | SQLException e) {
+                System.err.println("Error writing snapshot for " + stock.getTickerSymbol() + ": " + e.getMessage());
+            }
+        }
+        System.out.println(written + " snapshot(s) written to " + snapshotDir.toAbsolutePath());
+    }
 
-                    System.out.println("Client connected. Fetching data from database...");
+    // Send data to client
+    private static void serveClients(int port, ShardMap shardMap, String selfNode, Path snapshotDir) {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("Server listening on port " + port);
 
-                    List<Transaction> transactions = fetchTransactionsFromDatabase();
-                    out.writeObject(transactions);
-                    out.flush();
-                    System.out.println("Data sent to client.");
-                } catch (Exception e) {
+            ExecutorService clientPool = Executors.newFixedThreadPool(CLIENT_THREADS);
+            while (true) {
+                try {
+                    SocketChannel clientChannel = serverChannel.accept();
+                    clientPool.execute(() -> handleClient(clientChannel, shardMap, selfNode, snapshotDir));
+                } catch (IOException e) {
                     e.printStackTrace();
                 }
             }
@@ -271,27 +326,122 @@ public class StockV1 {
             e.printStackTrace();
         }
     }
+
+    private static void handleClient(SocketChannel clientChannel, ShardMap shardMap, String selfNode, Path snapshotDir) {
+        try (SocketChannel channel = clientChannel) {
+            // Read through the socket's own stream; a Channels.newInputStream stream ignores SO_TIMEOUT
+            channel.socket().setSoTimeout(REQUEST_TIMEOUT_MS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(channel.socket().getInputStream()));
+
+            // Request: ticker count followed by the tickers
+            int count = in.readInt();
+            System.out.println("Client connected. Sending " + count + " ticker snapshot(s)...");
+
+            // Response: one length-prefixed serialized List<Transaction> per requested ticker,
+            // or a negative ServerProtocol code in place of the length when it can't be served
+            for (int i = 0; i < count; i++) {
+                String ticker = in.readUTF();
+                if (!ServerProtocol.isValidTicker(ticker)) {
+                    System.err.println("Invalid ticker requested: " + ticker);
+                    writeHeader(channel, ServerProtocol.INVALID_TICKER);
+                } else if (!shardMap.ownerOf(ticker).equals(selfNode)) {
+                    System.err.println("Ticker " + ticker + " is owned by " + shardMap.ownerOf(ticker) + ", not " + selfNode);
+                    writeHeader(channel, ServerProtocol.NOT_OWNER);
+                } else {
+                    sendSnapshot(snapshotDir, ticker, channel);
+                }
+            }
+            System.out.println("Data sent to client.");
+        } catch (SocketTimeoutException e) {
+            System.err.println("Client request timed out after " + REQUEST_TIMEOUT_MS + " ms.");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Streams a ticker's snapshot file straight to the socket with transferTo (sendfile),
+    // so the bytes never pass through the heap. Missing snapshots are built from the database first.
+    private static void sendSnapshot(Path snapshotDir, String ticker, SocketChannel clientChannel) throws IOException {
+        Path snapshot = snapshotPath(snapshotDir, ticker);
+        if (!Files.exists(snapshot)) {
+            try {
+                writeSnapshot(snapshotDir, ticker);
+            } catch (IOException | SQLException e) {
+                System.err.println("Unable to build snapshot for " + ticker + ": " + e.getMessage());
+                writeHeader(clientChannel, ServerProtocol.UNAVAILABLE);
+                return;
+            }
+        }
+
+        try (FileChannel file = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            // writeSnapshot never keeps a file over Integer.MAX_VALUE bytes, so the cast is safe
+            long size = file.size();
+            writeHeader(clientChannel, (int) size);
+
+            long position = 0;
+            while (position < size) {
+                position += file.transferTo(position, size - position, clientChannel);
+            }
+        }
+    }
+
+    private static void writeHeader(SocketChannel clientChannel, int value) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(value);
+        header.flip();
+        while (header.hasRemaining()) {
+            clientChannel.write(header);
+        }
+    }
+
+    // Serializes a ticker's transactions once into its snapshot file. Written to a temp file and
+    // moved into place so a client being served never sees a half-written snapshot. A failed
+    // database read throws before anything is written, so an empty result is never cached.
+    // Synchronized so a rebuild on the serve path and the post-ingest rebuild can't interleave:
+    // the last database read is always the one left on disk.
+    private static synchronized void writeSnapshot(Path snapshotDir, String ticker) throws IOException, SQLException {
+        List<Transaction> transactions = fetchTransactionsFromDatabase(ticker);
+
+        Files.createDirectories(snapshotDir);
+        Path temp = Files.createTempFile(snapshotDir, ticker, ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeObject(transactions);
+            }
+            // The response header is an int length, so larger snapshots can't be framed
+            if (Files.size(temp) > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot for " + ticker + " exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, snapshotPath(snapshotDir, ticker), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Tickers are checked by ServerProtocol.isValidTicker first, so they are safe as file names
+    private static Path snapshotPath(Path snapshotDir, String ticker) {
+        return snapshotDir.resolve(ticker + ".snapshot");
+    }
     
-    // Fetch data back from database
-    private static List<Transaction> fetchTransactionsFromDatabase() {
+    // Fetch one ticker's data back from database
+    private static List<Transaction> fetchTransactionsFromDatabase(String ticker) throws SQLException {
         List<Transaction> transactions = new ArrayList<>();
-        String query = "SELECT ticker, timestamp, price, volume, is_machine FROM tick_data";
+        String query = "SELECT ticker, timestamp, price, volume, is_machine FROM tick_data WHERE ticker = ?";
 
         try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query);
-             ResultSet rs = stmt.executeQuery()) {
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-            while (rs.next()) {
-                String ticker = rs.getString("ticker");
-                String dateTime = rs.getString("timestamp");
-                double costPerShare = rs.getDouble("price");
-                int orderSize = rs.getInt("volume");
-                boolean bot = rs.getBoolean("is_machine");
+            stmt.setString(1, ticker);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String dateTime = rs.getString("timestamp");
+                    double costPerShare = rs.getDouble("price");
+                    int orderSize = rs.getInt("volume");
+                    boolean bot = rs.getBoolean("is_machine");
 
-                transactions.add(new Transaction(ticker, dateTime, costPerShare, orderSize, bot));
+                    transactions.add(new Transaction(rs.getString("ticker"), dateTime, costPerShare, orderSize, bot));
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return transactions;
     }
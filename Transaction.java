@@ -3,6 +3,9 @@ package com.mycompany.stockv1;
 import java.io.Serializable;
 
 public class Transaction implements Serializable {
+    // Fixed so snapshot files written by an earlier build still deserialize
+    private static final long serialVersionUID = 1L;
+
     String ticker;
     String dateTime;
     double costPerShare;